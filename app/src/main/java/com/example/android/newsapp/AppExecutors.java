@@ -0,0 +1,62 @@
+package com.example.android.newsapp;
+
+/**
+ * Holds the {@link TaskPool}s that all background work in the app runs on.
+ * API requests, other network requests, decoding and disk work each get their own
+ * pool so a slow thumbnail host can't starve the news request or bitmap decoding.
+ */
+public final class AppExecutors {
+
+    // Guardian API requests get their own thread so thumbnail downloads can't starve them
+    private static final TaskPool API = new TaskPool("api", 1, 4);
+
+    // Other network requests spend most of their time waiting, so allow a few at once
+    private static final TaskPool NETWORK = new TaskPool("network", 4, 32);
+
+    // Decoding is CPU bound, so keep it to a couple of threads
+    private static final TaskPool DECODE = new TaskPool("decode", 2, 32);
+
+    // Disk access is serialized on a single thread
+    private static final TaskPool DISK = new TaskPool("disk", 1, 16);
+
+    /**
+     * Create a private constructor because no one should ever create a {@link AppExecutors} object.
+     */
+    private AppExecutors() {
+    }
+
+    /**
+     * Returns the pool for Guardian API requests.
+     */
+    public static TaskPool api() {
+        return API;
+    }
+
+    /**
+     * Returns the pool for other network requests, such as thumbnail downloads.
+     */
+    public static TaskPool network() {
+        return NETWORK;
+    }
+
+    /**
+     * Returns the pool for decoding downloaded data.
+     */
+    public static TaskPool decode() {
+        return DECODE;
+    }
+
+    /**
+     * Returns the pool for reading and writing local files.
+     */
+    public static TaskPool disk() {
+        return DISK;
+    }
+
+    /**
+     * Returns the queue depth and wait time metrics of every pool, for logging.
+     */
+    public static String dumpMetrics() {
+        return API + " " + NETWORK + " " + DECODE + " " + DISK;
+    }
+}
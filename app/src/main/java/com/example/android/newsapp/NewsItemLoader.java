@@ -2,17 +2,28 @@ package com.example.android.newsapp;
 
 import android.content.AsyncTaskLoader;
 import android.content.Context;
+import android.os.Build;
+
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Loads a list of News Items by using an AsyncTask to perform the
- * network request to the given URL.
+ * network request to the given URL. The work itself runs on the {@link AppExecutors}
+ * pools and is cancelled when a new load starts, or when the loader is stopped or reset.
+ * On API 15 a load that is cancelled just as it starts may still run to the end;
+ * its result is thrown away.
  */
 public class NewsItemLoader extends AsyncTaskLoader<List<NewsItem>> {
 
     // Query URL
     private String mUrl;
 
+    // Task groups of the loads that are running. Each load creates and owns its own group.
+    private final Set<TaskGroup> mTaskGroups = new HashSet<>();
+
     /**
      * Constructs a new {@link NewsItemLoader}.
      *
@@ -29,6 +40,23 @@ public class NewsItemLoader extends AsyncTaskLoader<List<NewsItem>> {
         forceLoad();
     }
 
+    @Override
+    protected void onForceLoad() {
+        // Cancel the running load before the new one can start, so only the old load's
+        // groups are cancelled. AsyncTaskLoader waits for the old load to finish before
+        // starting the new one.
+        cancelLoad();
+        cancelTasks();
+        super.onForceLoad();
+    }
+
+    @Override
+    protected void onStopLoading() {
+        // The activity is no longer visible. onStartLoading reloads when it comes back.
+        cancelLoad();
+        cancelTasks();
+    }
+
     /**
      * This is on a background thread.
      */
@@ -38,8 +66,47 @@ public class NewsItemLoader extends AsyncTaskLoader<List<NewsItem>> {
             return null;
         }
 
-        // Perform the network request, parse the response, and extract a list of news items.
-        List<NewsItem> newsItems = QueryUtils.fetchNewsItemData(mUrl);
-        return newsItems;
+        TaskGroup taskGroup = new TaskGroup();
+        synchronized (mTaskGroups) {
+            mTaskGroups.add(taskGroup);
+        }
+
+        try {
+            // A cancel that came in before the group was registered didn't reach it,
+            // but it did mark this load as cancelled.
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN
+                    && isLoadInBackgroundCanceled()) {
+                return null;
+            }
+
+            // Perform the network request, parse the response, and extract a list of news items.
+            List<NewsItem> newsItems = QueryUtils.fetchNewsItemData(mUrl, taskGroup);
+            return taskGroup.isCancelled() ? null : newsItems;
+        } finally {
+            synchronized (mTaskGroups) {
+                mTaskGroups.remove(taskGroup);
+            }
+        }
+    }
+
+    @Override
+    protected void onReset() {
+        super.onReset();
+        // The activity no longer needs the results, so stop any work still in flight.
+        cancelLoad();
+        cancelTasks();
+    }
+
+    /**
+     * Cancel the background tasks of every running load.
+     */
+    private void cancelTasks() {
+        List<TaskGroup> taskGroups;
+        synchronized (mTaskGroups) {
+            taskGroups = new ArrayList<>(mTaskGroups);
+        }
+        for (TaskGroup taskGroup : taskGroups) {
+            taskGroup.cancel();
+        }
     }
 }
@@ -9,16 +9,19 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Helper methods related to requesting and receiving news articles data from the Guardian API.
@@ -28,6 +31,11 @@ public final class QueryUtils {
     // Tag for the log messages
     private static final String LOG_TAG = QueryUtils.class.getSimpleName();
 
+    // Deadlines for the background tasks, in milliseconds
+    private static final long REQUEST_DEADLINE_MILLIS = 30000;
+    private static final long THUMBNAIL_DEADLINE_MILLIS = 15000;
+    private static final long DECODE_DEADLINE_MILLIS = 5000;
+
     /**
      * Create a private constructor because no one should ever create a {@link QueryUtils} object.
      * This class is only meant to hold static variables and methods, which can be accessed
@@ -38,21 +46,20 @@ public final class QueryUtils {
 
     /**
      * Query the Guardian dataset and return a list of {@link NewsItem} objects.
+     * All network and decode work is submitted to {@link AppExecutors} as part of the given group.
      */
-    public static List<NewsItem> fetchNewsItemData(String requestUrl) {
-        // Create URL object
-        URL url = createUrl(requestUrl);
-
-        // Perform HTTP request to the URL and receive a JSON response back
-        String jsonResponse = null;
-        try {
-            jsonResponse = makeHttpRequest(url);
-        } catch (IOException e) {
-            Log.e(LOG_TAG, "Problem making the HTTP request.", e);
-        }
+    public static List<NewsItem> fetchNewsItemData(String requestUrl, TaskGroup group) {
+        // Perform HTTP request to the URL on the API pool and receive a JSON response back
+        String jsonResponse = group.await(group.submit(AppExecutors.api(),
+                new NewsRequest(requestUrl), REQUEST_DEADLINE_MILLIS));
 
         // Extract relevant fields from the JSON response and create a list of {@link NewsItem}s
-        List<NewsItem> newsItems = extractFeatureFromJson(jsonResponse);
+        List<NewsItem> newsItems = extractFeatureFromJson(jsonResponse, group);
+
+        // Log how busy the pools were during this load
+        if (BuildConfig.DEBUG) {
+            Log.d(LOG_TAG, AppExecutors.dumpMetrics());
+        }
 
         // Return the list of {@link NewsItem}s
         return newsItems;
@@ -71,73 +78,11 @@ public final class QueryUtils {
         return url;
     }
 
-    /**
-     * Make an HTTP request to the given URL and return a String as the response.
-     */
-    private static String makeHttpRequest(URL url) throws IOException {
-        String jsonResponse = "";
-
-        // If the URL is null, then return early.
-        if (url == null) {
-            return jsonResponse;
-        }
-
-        HttpURLConnection urlConnection = null;
-        InputStream inputStream = null;
-        try {
-            urlConnection = (HttpURLConnection) url.openConnection();
-            urlConnection.setReadTimeout(10000 /* milliseconds */);
-            urlConnection.setConnectTimeout(15000 /* milliseconds */);
-            urlConnection.setRequestMethod("GET");
-            urlConnection.connect();
-
-            // If the request was successful (response code 200),
-            // then read the input stream and parse the response.
-            if (urlConnection.getResponseCode() == 200) {
-                inputStream = urlConnection.getInputStream();
-                jsonResponse = readFromStream(inputStream);
-            } else {
-                Log.e(LOG_TAG, "Error response code: " + urlConnection.getResponseCode());
-            }
-        } catch (IOException e) {
-            Log.e(LOG_TAG, "Problem retrieving the news item JSON results.", e);
-        } finally {
-            if (urlConnection != null) {
-                urlConnection.disconnect();
-            }
-            if (inputStream != null) {
-                // Closing the input stream could throw an IOException, which is why
-                // the makeHttpRequest(URL url) method signature specifies than an IOException
-                // could be thrown.
-                inputStream.close();
-            }
-        }
-        return jsonResponse;
-    }
-
-    /**
-     * Convert the {@link InputStream} into a String which contains the
-     * whole JSON response from the server.
-     */
-    private static String readFromStream(InputStream inputStream) throws IOException {
-        StringBuilder output = new StringBuilder();
-        if (inputStream != null) {
-            InputStreamReader inputStreamReader = new InputStreamReader(inputStream, Charset.forName("UTF-8"));
-            BufferedReader reader = new BufferedReader(inputStreamReader);
-            String line = reader.readLine();
-            while (line != null) {
-                output.append(line);
-                line = reader.readLine();
-            }
-        }
-        return output.toString();
-    }
-
     /**
      * Return a list of {@link NewsItem} objects that has been built up from
      * parsing the given JSON response.
      */
-    private static List<NewsItem> extractFeatureFromJson(String newsJSON) {
+    private static List<NewsItem> extractFeatureFromJson(String newsJSON, TaskGroup group) {
         // If the JSON string is empty or null, then return early.
         if (TextUtils.isEmpty(newsJSON)) {
             return null;
@@ -146,6 +91,9 @@ public final class QueryUtils {
         // Create an empty ArrayList that we can start adding news items to
         List<NewsItem> newsItemList = new ArrayList<>();
 
+        // News items whose thumbnails are still being downloaded
+        List<PendingNewsItem> pendingList = new ArrayList<>();
+
         // Try to parse the JSON response string. If there's a problem with the way the JSON
         // is formatted, a JSONException exception object will be thrown.
         // Catch the exception so the app doesn't crash, and print the error message to the logs.
@@ -191,15 +139,12 @@ public final class QueryUtils {
                 // Extract the value for the key called "shortUrl"
                 String url = fields.getString("shortUrl");
 
-                // Extract the value for the key called "thumbnail"
-                Bitmap thumbnail = getBitmap(fields.getString("thumbnail"));
+                // Extract the value for the key called "thumbnail" and start downloading it
+                // on the network pool, so all thumbnails are fetched at the same time.
+                Future<Future<Bitmap>> thumbnail = group.submit(AppExecutors.network(),
+                        new ThumbnailDownload(fields.getString("thumbnail"), group), THUMBNAIL_DEADLINE_MILLIS);
 
-                // Create a new {@link NewsItem} object with the title, section, author,
-                // date, trailText, url, and thumbnail from the JSON response.
-                NewsItem newsItem = new NewsItem(title, section, author, date, trailText, url, thumbnail);
-
-                // Add the new {@link NewsItem} to the list of news items.
-                newsItemList.add(newsItem);
+                pendingList.add(new PendingNewsItem(title, section, author, date, trailText, url, thumbnail));
             }
 
         } catch (JSONException e) {
@@ -209,24 +154,171 @@ public final class QueryUtils {
             Log.e("QueryUtils", "Problem parsing the news item JSON results", e);
         }
 
+        for (PendingNewsItem pending : pendingList) {
+            // Wait for the download, then for the decode it started when it finished
+            Bitmap thumbnail = group.await(group.await(pending.mThumbnail));
+
+            // Create a new {@link NewsItem} object with the title, section, author,
+            // date, trailText, url, and thumbnail from the JSON response.
+            NewsItem newsItem = new NewsItem(pending.mTitle, pending.mSection, pending.mAuthor,
+                    pending.mDate, pending.mTrailText, pending.mUrl, thumbnail);
+
+            // Add the new {@link NewsItem} to the list of news items.
+            newsItemList.add(newsItem);
+        }
+
         // Return the list of news items
         return newsItemList;
     }
 
     /**
      * Helper method for converting a thumbnail into a bitmap
-     * @param thumbnail the thumbnail retrieved from newsJSON
-     * @return a bitmap of the thumbnail or null if the thumbnail is null
+     * @param data the downloaded thumbnail
+     * @return a bitmap of the thumbnail or null if the data could not be decoded
      */
-    private static Bitmap getBitmap(String thumbnail) {
+    private static Bitmap decodeThumbnail(byte[] data) {
+        return BitmapFactory.decodeByteArray(data, 0, data.length);
+    }
+
+    // Base class for the HTTP requests made on the network pools. Cancelling the task
+    // disconnects the connection, because a blocked socket read ignores thread interrupts.
+    // The whole response must arrive within the given deadline, since the read timeout
+    // only applies to each read on its own.
+    private abstract static class CancellableRequest<T> implements Callable<T>, TaskPool.Cancellable {
+        private volatile HttpURLConnection mConnection;
+        private volatile boolean mCancelled;
+
+        /**
+         * Make a GET request to the given URL and return the body of the response,
+         * or null if the URL is invalid or the server did not answer with 200.
+         */
+        byte[] download(String stringUrl, long deadlineMillis) throws IOException {
+            URL url = createUrl(stringUrl);
+            if (url == null) {
+                return null;
+            }
 
-        if (thumbnail != null) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+            HttpURLConnection urlConnection = null;
+            InputStream inputStream = null;
             try {
-                return BitmapFactory.decodeStream((InputStream) new URL(thumbnail).getContent());
+                urlConnection = (HttpURLConnection) url.openConnection();
+                mConnection = urlConnection;
+                // The task may have been cancelled before the connection was published
+                if (mCancelled) {
+                    throw new InterruptedIOException("Request cancelled");
+                }
+                urlConnection.setReadTimeout(10000 /* milliseconds */);
+                urlConnection.setConnectTimeout(15000 /* milliseconds */);
+                urlConnection.setRequestMethod("GET");
+                urlConnection.connect();
+
+                if (urlConnection.getResponseCode() != 200) {
+                    Log.e(LOG_TAG, "Error response code: " + urlConnection.getResponseCode());
+                    return null;
+                }
+
+                inputStream = urlConnection.getInputStream();
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                int read = inputStream.read(buffer);
+                while (read != -1) {
+                    if (Thread.interrupted()) {
+                        throw new InterruptedIOException("Request cancelled");
+                    }
+                    if (System.nanoTime() > deadline) {
+                        throw new InterruptedIOException("Request took too long");
+                    }
+                    output.write(buffer, 0, read);
+                    read = inputStream.read(buffer);
+                }
+                return output.toByteArray();
+            } finally {
+                mConnection = null;
+                if (urlConnection != null) {
+                    urlConnection.disconnect();
+                }
+                if (inputStream != null) {
+                    inputStream.close();
+                }
+            }
+        }
+
+        @Override
+        public void onCancel() {
+            mCancelled = true;
+            HttpURLConnection urlConnection = mConnection;
+            if (urlConnection != null) {
+                urlConnection.disconnect();
+            }
+        }
+    }
+
+    // Requests the news item JSON from the Guardian API
+    private static class NewsRequest extends CancellableRequest<String> {
+        private final String mRequestUrl;
+
+        NewsRequest(String requestUrl) {
+            mRequestUrl = requestUrl;
+        }
+
+        @Override
+        public String call() {
+            try {
+                byte[] data = download(mRequestUrl, REQUEST_DEADLINE_MILLIS);
+                return data == null ? "" : new String(data, Charset.forName("UTF-8"));
             } catch (IOException e) {
-                e.printStackTrace();
+                Log.e(LOG_TAG, "Problem retrieving the news item JSON results.", e);
+                return "";
             }
         }
-        return null;
+    }
+
+    // Downloads a thumbnail and, as soon as it arrives, submits it to the decode pool
+    private static class ThumbnailDownload extends CancellableRequest<Future<Bitmap>> {
+        private final String mThumbnail;
+        private final TaskGroup mGroup;
+
+        ThumbnailDownload(String thumbnail, TaskGroup group) {
+            mThumbnail = thumbnail;
+            mGroup = group;
+        }
+
+        @Override
+        public Future<Bitmap> call() throws IOException {
+            final byte[] data = download(mThumbnail, THUMBNAIL_DEADLINE_MILLIS);
+            if (data == null) {
+                return null;
+            }
+
+            return mGroup.submit(AppExecutors.decode(), new Callable<Bitmap>() {
+                @Override
+                public Bitmap call() {
+                    return decodeThumbnail(data);
+                }
+            }, DECODE_DEADLINE_MILLIS);
+        }
+    }
+
+    // Holds the fields of a news item while its thumbnail is downloaded and decoded
+    private static class PendingNewsItem {
+        final String mTitle;
+        final String mSection;
+        final String mAuthor;
+        final String mDate;
+        final String mTrailText;
+        final String mUrl;
+        final Future<Future<Bitmap>> mThumbnail;
+
+        PendingNewsItem(String title, String section, String author, String date,
+                        String trailText, String url, Future<Future<Bitmap>> thumbnail) {
+            mTitle = title;
+            mSection = section;
+            mAuthor = author;
+            mDate = date;
+            mTrailText = trailText;
+            mUrl = url;
+            mThumbnail = thumbnail;
+        }
     }
 }
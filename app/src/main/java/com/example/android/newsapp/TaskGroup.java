@@ -0,0 +1,126 @@
+package com.example.android.newsapp;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * {@link TaskGroup} tracks a set of tasks submitted to {@link TaskPool}s so they can
+ * all be cancelled together, for example when the loader that started them is reset.
+ * Every task has a deadline measured from when it was submitted.
+ */
+public final class TaskGroup {
+
+    // Tag for the log messages
+    private static final String LOG_TAG = TaskGroup.class.getSimpleName();
+
+    // Deadline of each running task, as a System.nanoTime() value
+    private final Map<Future<?>, Long> mDeadlines = new HashMap<>();
+
+    // Whether the group has been cancelled
+    private boolean mCancelled;
+
+    /**
+     * Submit a task to the given pool as part of this group.
+     *
+     * @param pool the pool to run the task on
+     * @param task the work to run
+     * @param timeoutMillis how long the task may take, including time spent in the queue
+     * @return a {@link Future} for the result, or null if the group is cancelled or the pool is full
+     */
+    public synchronized <T> Future<T> submit(TaskPool pool, Callable<T> task, long timeoutMillis) {
+        if (mCancelled) {
+            return null;
+        }
+
+        Future<T> future;
+        try {
+            future = pool.submit(task);
+        } catch (RejectedExecutionException e) {
+            Log.e(LOG_TAG, "Task rejected by " + pool, e);
+            return null;
+        }
+
+        mDeadlines.put(future, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+        return future;
+    }
+
+    /**
+     * Wait for a task in this group to finish. If the task misses its deadline it is cancelled.
+     * Each task can only be awaited once. A {@link Future} that has no deadline in this group,
+     * because it was already awaited or didn't come from {@link #submit}, returns null right away.
+     *
+     * @param future the {@link Future} returned by {@link #submit}
+     * @return the result of the task, or null if it failed, timed out or was cancelled
+     */
+    public <T> T await(Future<T> future) {
+        if (future == null) {
+            return null;
+        }
+
+        Long deadline;
+        synchronized (this) {
+            deadline = mDeadlines.get(future);
+        }
+
+        // Never wait without a deadline
+        if (deadline == null) {
+            return null;
+        }
+
+        try {
+            long remaining = Math.max(0, deadline - System.nanoTime());
+            return future.get(remaining, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            Log.e(LOG_TAG, "Task missed its deadline.", e);
+            future.cancel(true);
+        } catch (ExecutionException e) {
+            Log.e(LOG_TAG, "Task failed.", e.getCause());
+        } catch (CancellationException e) {
+            // The group was cancelled, nothing left to do.
+        } catch (InterruptedException e) {
+            // The waiting thread was interrupted, so give up on the whole group.
+            Thread.currentThread().interrupt();
+            cancel();
+        } finally {
+            synchronized (this) {
+                mDeadlines.remove(future);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Cancel every task in this group and refuse any new ones.
+     */
+    public void cancel() {
+        List<Future<?>> futures;
+        synchronized (this) {
+            mCancelled = true;
+            futures = new ArrayList<>(mDeadlines.keySet());
+            mDeadlines.clear();
+        }
+
+        // Cancel outside the lock so other threads can keep calling await while this runs
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * Returns true if the group has been cancelled.
+     */
+    public synchronized boolean isCancelled() {
+        return mCancelled;
+    }
+}
@@ -0,0 +1,247 @@
+package com.example.android.newsapp;
+
+import android.os.Process;
+import android.util.Log;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link TaskPool} is a bounded pool of background threads used for one kind of work
+ * (API, network, decode or disk). It keeps track of how deep its queue is and how long
+ * tasks wait before they start running.
+ */
+public final class TaskPool {
+
+    // Tag for the log messages
+    private static final String LOG_TAG = TaskPool.class.getSimpleName();
+
+    // Runs Cancellable.onCancel. Tasks are often cancelled from the main thread, and
+    // closing a connection can do network I/O, so it must not happen on the caller's thread.
+    private static final ExecutorService CANCEL_EXECUTOR =
+            Executors.newSingleThreadExecutor(new BackgroundThreadFactory("cancel"));
+
+    // Idle threads are released after this many seconds
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    // Name of the pool, used for thread names and metrics
+    private final String mName;
+
+    // Executor that runs the tasks. Its queue is bounded, so submitting to a full pool
+    // throws a RejectedExecutionException instead of piling up work.
+    private final ThreadPoolExecutor mExecutor;
+
+    // Number of tasks that have started running
+    private final AtomicLong mStartedCount = new AtomicLong();
+
+    // Total and maximum time tasks spent in the queue, in milliseconds
+    private final AtomicLong mTotalWaitMillis = new AtomicLong();
+    private final AtomicLong mMaxWaitMillis = new AtomicLong();
+
+    // Number of tasks accepted, and the total and maximum queue depth seen right after
+    // each one was queued. The queue is usually empty by the time anyone logs the metrics,
+    // so the depth is sampled when work arrives instead.
+    private final AtomicLong mSubmittedCount = new AtomicLong();
+    private final AtomicLong mTotalQueueDepth = new AtomicLong();
+    private final AtomicLong mMaxQueueDepth = new AtomicLong();
+
+    /**
+     * Constructs a new {@link TaskPool}.
+     *
+     * @param name of the pool
+     * @param threads maximum number of threads running at once
+     * @param queueCapacity maximum number of tasks waiting for a thread
+     */
+    public TaskPool(String name, int threads, int queueCapacity) {
+        mName = name;
+        mExecutor = new ThreadPoolExecutor(threads, threads,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity),
+                new BackgroundThreadFactory(name));
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Submit a task to the pool. If the task implements {@link Cancellable} it is told
+     * when its {@link Future} is cancelled.
+     *
+     * @param task the work to run
+     * @return a {@link Future} for the result of the task
+     * @throws java.util.concurrent.RejectedExecutionException if the queue is full
+     */
+    public <T> Future<T> submit(final Callable<T> task) {
+        final long queuedAt = System.nanoTime();
+        FutureTask<T> future = new FutureTask<T>(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                recordWait(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - queuedAt));
+                return task.call();
+            }
+        }) {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                boolean cancelled = super.cancel(mayInterruptIfRunning);
+                if (cancelled) {
+                    // Free the queue slot now instead of waiting for a worker to skip the task
+                    mExecutor.remove(this);
+
+                    // Interrupting the thread doesn't stop a blocking socket read,
+                    // so let the task release whatever it is blocked on.
+                    if (task instanceof Cancellable) {
+                        notifyCancelled((Cancellable) task);
+                    }
+                }
+                return cancelled;
+            }
+        };
+        mExecutor.execute(future);
+        recordQueueDepth(getQueueDepth());
+        return future;
+    }
+
+    /**
+     * Stop the pool. Running tasks are interrupted and queued tasks are dropped.
+     */
+    public void shutdownNow() {
+        mExecutor.shutdownNow();
+    }
+
+    /**
+     * Returns the number of tasks waiting for a thread.
+     */
+    public int getQueueDepth() {
+        return mExecutor.getQueue().size();
+    }
+
+    /**
+     * Returns the deepest the queue has been right after a task was submitted.
+     */
+    public long getMaxQueueDepth() {
+        return mMaxQueueDepth.get();
+    }
+
+    /**
+     * Returns the average depth of the queue right after a task was submitted.
+     */
+    public float getAverageQueueDepth() {
+        long submitted = mSubmittedCount.get();
+        return submitted == 0 ? 0 : (float) mTotalQueueDepth.get() / submitted;
+    }
+
+    /**
+     * Returns the average time tasks spent in the queue, in milliseconds.
+     */
+    public long getAverageWaitMillis() {
+        long started = mStartedCount.get();
+        return started == 0 ? 0 : mTotalWaitMillis.get() / started;
+    }
+
+    /**
+     * Returns the longest time a task spent in the queue, in milliseconds.
+     */
+    public long getMaxWaitMillis() {
+        return mMaxWaitMillis.get();
+    }
+
+    /**
+     * Helper method to call {@link Cancellable#onCancel} on the cancel thread
+     * @param task the task that was cancelled
+     */
+    private static void notifyCancelled(final Cancellable task) {
+        CANCEL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    task.onCancel();
+                } catch (RuntimeException e) {
+                    Log.e(LOG_TAG, "Problem cancelling the task.", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Helper method to add a queue depth sample to the metrics
+     * @param depth number of tasks waiting right after a submit
+     */
+    private void recordQueueDepth(long depth) {
+        mSubmittedCount.incrementAndGet();
+        mTotalQueueDepth.addAndGet(depth);
+        updateMax(mMaxQueueDepth, depth);
+    }
+
+    /**
+     * Helper method to add a queue wait time to the metrics
+     * @param waitMillis time the task spent in the queue
+     */
+    private void recordWait(long waitMillis) {
+        mStartedCount.incrementAndGet();
+        mTotalWaitMillis.addAndGet(waitMillis);
+        updateMax(mMaxWaitMillis, waitMillis);
+    }
+
+    /**
+     * Helper method to raise a maximum to the given value if it is larger
+     */
+    private static void updateMax(AtomicLong max, long value) {
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TaskPool{" +
+                "mName='" + mName + '\'' +
+                ", active=" + mExecutor.getActiveCount() +
+                ", queueDepth=" + getQueueDepth() +
+                ", maxQueueDepth=" + getMaxQueueDepth() +
+                ", avgQueueDepth=" + getAverageQueueDepth() +
+                ", started=" + mStartedCount.get() +
+                ", avgWaitMillis=" + getAverageWaitMillis() +
+                ", maxWaitMillis=" + getMaxWaitMillis() +
+                '}';
+    }
+
+    /**
+     * Implemented by tasks that block on something a thread interrupt can't stop,
+     * such as an open network connection.
+     */
+    public interface Cancellable {
+        /**
+         * Called on a background thread after the task is cancelled.
+         */
+        void onCancel();
+    }
+
+    // Creates named threads that run at background priority so they don't compete with the UI
+    private static class BackgroundThreadFactory implements ThreadFactory {
+        private final String mName;
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        BackgroundThreadFactory(String name) {
+            mName = name;
+        }
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, "newsapp-" + mName + "-" + mCount.incrementAndGet());
+        }
+    }
+}
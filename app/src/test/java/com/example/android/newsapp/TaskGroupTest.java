@@ -0,0 +1,116 @@
+package com.example.android.newsapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.example.android.newsapp.TaskTestUtils.blockThread;
+import static com.example.android.newsapp.TaskTestUtils.value;
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link TaskGroup}.
+ */
+public class TaskGroupTest {
+
+    private TaskGroup mGroup;
+
+    // Pool with one thread and room for one queued task
+    private TaskPool mPool;
+
+    // Released at the end of each test to free a thread blocked by blockThread
+    private final CountDownLatch mRelease = new CountDownLatch(1);
+
+    @Before
+    public void setUp() {
+        mGroup = new TaskGroup();
+        mPool = new TaskPool("test", 1, 1);
+    }
+
+    @After
+    public void tearDown() {
+        mRelease.countDown();
+        mPool.shutdownNow();
+    }
+
+    @Test
+    public void await_returnsResult() throws Exception {
+        assertEquals("done", mGroup.await(mGroup.submit(mPool, value("done"), 1000)));
+    }
+
+    @Test
+    public void await_deadlineIncludesTimeInQueue() throws Exception {
+        blockThread(mPool, mRelease);
+        final AtomicBoolean ran = new AtomicBoolean();
+        Future<String> queued = mGroup.submit(mPool, new Callable<String>() {
+            @Override
+            public String call() {
+                ran.set(true);
+                return "late";
+            }
+        }, 1000);
+
+        // Let the task spend its whole deadline in the queue. Waiting now must not
+        // start a fresh deadline, so await gives up long before another second passes.
+        Thread.sleep(1100);
+        long start = System.nanoTime();
+        assertNull(mGroup.await(queued));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 900);
+
+        assertTrue(queued.isCancelled());
+        assertEquals(0, mPool.getQueueDepth());
+        mRelease.countDown();
+        assertFalse(ran.get());
+    }
+
+    @Test
+    public void await_returnsNullWithoutDeadline() throws Exception {
+        // A task can't be awaited a second time
+        Future<String> awaited = mGroup.submit(mPool, value("done"), 1000);
+        assertEquals("done", mGroup.await(awaited));
+        assertNull(mGroup.await(awaited));
+
+        // Submitted straight to the pool, so the group has no deadline for it
+        blockThread(mPool, mRelease);
+        Future<String> future = mPool.submit(value("queued"));
+        assertNull(mGroup.await(future));
+        assertFalse(future.isDone());
+    }
+
+    @Test
+    public void await_cancelsTaskThatMissesDeadline() throws Exception {
+        TaskTestUtils.CancellableTask task = new TaskTestUtils.CancellableTask();
+
+        Future<String> future = mGroup.submit(mPool, task, 100);
+        assertNull(mGroup.await(future));
+        assertTrue(task.mCancelled.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void cancel_cancelsRunningTasksAndRefusesNewOnes() throws Exception {
+        TaskTestUtils.CancellableTask task = new TaskTestUtils.CancellableTask();
+
+        Future<String> future = mGroup.submit(mPool, task, 1000);
+        assertTrue(task.mStarted.await(1, TimeUnit.SECONDS));
+        mGroup.cancel();
+
+        assertTrue(mGroup.isCancelled());
+        assertTrue(future.isCancelled());
+        assertTrue(task.mCancelled.await(1, TimeUnit.SECONDS));
+        assertNull(mGroup.await(future));
+        assertNull(mGroup.submit(mPool, value("after"), 1000));
+    }
+
+    @Test
+    public void submit_returnsNullWhenPoolIsFull() throws Exception {
+        blockThread(mPool, mRelease);
+        assertNotNull(mGroup.submit(mPool, value("queued"), 1000));
+        assertNull(mGroup.submit(mPool, value("rejected"), 1000));
+    }
+}
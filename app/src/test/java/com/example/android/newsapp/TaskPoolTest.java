@@ -0,0 +1,101 @@
+package com.example.android.newsapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.android.newsapp.TaskTestUtils.blockThread;
+import static com.example.android.newsapp.TaskTestUtils.value;
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link TaskPool}.
+ */
+public class TaskPoolTest {
+
+    // Pool with one thread and room for one queued task
+    private TaskPool mPool;
+
+    // Released at the end of each test to free a thread blocked by blockThread
+    private final CountDownLatch mRelease = new CountDownLatch(1);
+
+    @Before
+    public void setUp() {
+        mPool = new TaskPool("test", 1, 1);
+    }
+
+    @After
+    public void tearDown() {
+        mRelease.countDown();
+        mPool.shutdownNow();
+    }
+
+    @Test
+    public void submit_returnsResult() throws Exception {
+        Future<String> future = mPool.submit(value("done"));
+        assertEquals("done", future.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void submit_rejectsWhenQueueIsFull() throws Exception {
+        blockThread(mPool, mRelease);
+        mPool.submit(value("queued"));
+        mPool.submit(value("rejected"));
+    }
+
+    @Test
+    public void cancel_removesTaskFromQueue() throws Exception {
+        blockThread(mPool, mRelease);
+        Future<String> queued = mPool.submit(value("queued"));
+        assertEquals(1, mPool.getQueueDepth());
+
+        queued.cancel(true);
+        assertEquals(0, mPool.getQueueDepth());
+
+        // The freed slot can be used again straight away
+        mPool.submit(value("next"));
+    }
+
+    @Test
+    public void cancel_notifiesCancellableTaskOnAnotherThread() throws Exception {
+        TaskTestUtils.CancellableTask task = new TaskTestUtils.CancellableTask();
+
+        Future<String> future = mPool.submit(task);
+        assertTrue(task.mStarted.await(1, TimeUnit.SECONDS));
+        future.cancel(true);
+
+        assertTrue(task.mCancelled.await(1, TimeUnit.SECONDS));
+        assertNotSame(Thread.currentThread(), task.mCancelThread);
+    }
+
+    @Test
+    public void submit_recordsPeakQueueDepth() throws Exception {
+        blockThread(mPool, mRelease);
+        Future<String> queued = mPool.submit(value("queued"));
+        queued.cancel(true);
+
+        // The queue is empty again, but the peak is kept
+        assertEquals(0, mPool.getQueueDepth());
+        assertEquals(1, mPool.getMaxQueueDepth());
+        assertEquals(0.5f, mPool.getAverageQueueDepth(), 0.001f);
+    }
+
+    @Test
+    public void submit_recordsWaitTime() throws Exception {
+        blockThread(mPool, mRelease);
+        Future<String> queued = mPool.submit(value("queued"));
+
+        // Sleeping guarantees the task waits at least this long, however slow the host is
+        Thread.sleep(200);
+        mRelease.countDown();
+        queued.get(1, TimeUnit.SECONDS);
+
+        assertTrue(mPool.getMaxWaitMillis() >= 200);
+        assertTrue(mPool.getAverageWaitMillis() > 0);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.android.newsapp;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Helpers shared by the {@link TaskPool} and {@link TaskGroup} tests.
+ */
+final class TaskTestUtils {
+
+    private TaskTestUtils() {
+    }
+
+    /**
+     * Helper method to create a task that returns the given value
+     */
+    static Callable<String> value(final String value) {
+        return new Callable<String>() {
+            @Override
+            public String call() {
+                return value;
+            }
+        };
+    }
+
+    /**
+     * Helper method to occupy the only thread of the pool until the latch is released
+     */
+    static void blockThread(TaskPool pool, final CountDownLatch release) throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        pool.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws InterruptedException {
+                started.countDown();
+                release.await();
+                return null;
+            }
+        });
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+    }
+
+    // Task that blocks until it is told it has been cancelled
+    static class CancellableTask implements Callable<String>, TaskPool.Cancellable {
+        final CountDownLatch mStarted = new CountDownLatch(1);
+        final CountDownLatch mCancelled = new CountDownLatch(1);
+        volatile Thread mCancelThread;
+
+        @Override
+        public String call() throws InterruptedException {
+            mStarted.countDown();
+            mCancelled.await();
+            return "cancelled";
+        }
+
+        @Override
+        public void onCancel() {
+            mCancelThread = Thread.currentThread();
+            mCancelled.countDown();
+        }
+    }
+}